@@ -0,0 +1,55 @@
+package com.andreapivetta.minifunk;
+
+import com.andreapivetta.minifunk.function.BiFunction;
+
+import java.util.List;
+
+/**
+ * The saved result of an {@link IncrementalStream} terminal operation.
+ *
+ * @param <S> the element type of the source list
+ * @param <R> the type of the result
+ * @author Andrea Pivetta
+ */
+public final class IncrementalResult<S, R> {
+
+    private final List<S> source;
+    private final BiFunction<List<S>, R> step;
+    private R value;
+    private int processed;
+
+    IncrementalResult(List<S> source, R initial, BiFunction<List<S>, R> step) {
+        this.source = source;
+        this.step = step;
+        this.value = initial;
+        refresh();
+    }
+
+    /**
+     * Returns the result as of the last refresh.
+     *
+     * @return the result
+     */
+    public R get() {
+        return this.value;
+    }
+
+    /**
+     * Runs the elements appended to the source since the last refresh through the pipeline and merges them into the
+     * saved result.
+     *
+     * @return the updated result
+     * @throws IllegalStateException if the source shrank since the last refresh
+     */
+    public R refresh() {
+        int size = this.source.size();
+        if (size < this.processed)
+            throw new IllegalStateException("source must only grow by appending elements");
+
+        if (size > this.processed) {
+            this.value = this.step.apply(this.value, this.source.subList(this.processed, size));
+            this.processed = size;
+        }
+        return this.value;
+    }
+}
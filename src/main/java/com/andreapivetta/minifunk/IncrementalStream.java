@@ -0,0 +1,169 @@
+package com.andreapivetta.minifunk;
+
+import com.andreapivetta.minifunk.function.BiFunction;
+import com.andreapivetta.minifunk.function.Function;
+import com.andreapivetta.minifunk.function.Predicate;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link Stream} pipeline bound to an append-only source list. Results produced by this pipeline keep their state
+ * and, when refreshed, only process the elements appended to the source since the previous refresh.
+ * <p>
+ * Only stateless operations are supported, since they can be applied to each appended element independently.
+ *
+ * @param <S> the element type of the source list
+ * @param <T> the element type of this pipeline
+ * @author Andrea Pivetta
+ */
+public final class IncrementalStream<S, T> {
+
+    private final List<S> source;
+    private final Function<List<S>, Stream<T>> pipeline;
+
+    private IncrementalStream(List<S> source, Function<List<S>, Stream<T>> pipeline) {
+        this.source = source;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Creates an {@link IncrementalStream} instance bound to a List<T>. The list must only grow by appending elements
+     * at its end.
+     *
+     * @param source the source list
+     * @return the {@link IncrementalStream} instance
+     * @throws IllegalArgumentException if source is null
+     */
+    public static <T> IncrementalStream<T, T> from(List<T> source) {
+        if (source == null)
+            throw new IllegalArgumentException("source must not be null");
+
+        return new IncrementalStream<T, T>(source, new Function<List<T>, Stream<T>>() {
+            @Override
+            public Stream<T> apply(List<T> delta) {
+                return Stream.from(delta);
+            }
+        });
+    }
+
+    /**
+     * Returns an {@link IncrementalResult} counting the elements of this {@link IncrementalStream}.
+     *
+     * @return the {@link IncrementalResult}
+     */
+    public IncrementalResult<S, Integer> count() {
+        return new IncrementalResult<S, Integer>(this.source, 0, new BiFunction<List<S>, Integer>() {
+            @Override
+            public Integer apply(Integer count, List<S> delta) {
+                return count + pipeline.apply(delta).count();
+            }
+        });
+    }
+
+    /**
+     * Returns an {@link IncrementalResult} holding the distinct elements of this {@link IncrementalStream}, in
+     * encounter order. The result is an unmodifiable view of the saved state, so it reflects later refreshes.
+     *
+     * @return the {@link IncrementalResult}
+     */
+    public IncrementalResult<S, Set<T>> distinct() {
+        final Set<T> distinct = new LinkedHashSet<T>();
+        return new IncrementalResult<S, Set<T>>(this.source, Collections.unmodifiableSet(distinct),
+                new BiFunction<List<S>, Set<T>>() {
+                    @Override
+                    public Set<T> apply(Set<T> view, List<S> delta) {
+                        pipeline.apply(delta).into(distinct);
+                        return view;
+                    }
+                });
+    }
+
+    /**
+     * Returns an {@link IncrementalStream} consisting of the elements of this {@link IncrementalStream} that match
+     * the given predicate.
+     *
+     * @param predicate a predicate to apply to each element to determine if it should be included
+     * @return the new {@link IncrementalStream}
+     * @throws IllegalArgumentException if predicate is null
+     */
+    public IncrementalStream<S, T> filter(final Predicate<? super T> predicate) {
+        if (predicate == null)
+            throw new IllegalArgumentException("predicate must not be null");
+
+        return new IncrementalStream<S, T>(this.source, new Function<List<S>, Stream<T>>() {
+            @Override
+            public Stream<T> apply(List<S> delta) {
+                return pipeline.apply(delta).filter(predicate);
+            }
+        });
+    }
+
+    /**
+     * Returns an {@link IncrementalStream} consisting of the results of replacing each element of this
+     * {@link IncrementalStream} with the contents of a mapped {@link Stream} produced by applying the provided mapping
+     * function to each element.
+     *
+     * @param mapper a function to apply to each element
+     * @param <R>    The element type of the new {@link IncrementalStream}
+     * @return the new {@link IncrementalStream}
+     * @throws IllegalArgumentException if mapper is null
+     */
+    public <R> IncrementalStream<S, R> flatMap(final Function<? super T, ? extends Stream<? extends R>> mapper) {
+        if (mapper == null)
+            throw new IllegalArgumentException("mapper must not be null");
+
+        return new IncrementalStream<S, R>(this.source, new Function<List<S>, Stream<R>>() {
+            @Override
+            public Stream<R> apply(List<S> delta) {
+                return pipeline.apply(delta).flatMap(mapper);
+            }
+        });
+    }
+
+    /**
+     * Returns an {@link IncrementalStream} consisting of the results of applying the given function to the elements
+     * of this {@link IncrementalStream}.
+     *
+     * @param mapper a function to apply to each element
+     * @param <R>    The element type of the new {@link IncrementalStream}
+     * @return the new {@link IncrementalStream}
+     * @throws IllegalArgumentException if mapper is null
+     */
+    public <R> IncrementalStream<S, R> map(final Function<? super T, ? extends R> mapper) {
+        if (mapper == null)
+            throw new IllegalArgumentException("mapper must not be null");
+
+        return new IncrementalStream<S, R>(this.source, new Function<List<S>, Stream<R>>() {
+            @Override
+            public Stream<R> apply(List<S> delta) {
+                return pipeline.apply(delta).map(mapper);
+            }
+        });
+    }
+
+    /**
+     * Returns an {@link IncrementalResult} performing a reduction on the elements of this {@link IncrementalStream},
+     * using the provided initial accumulator value and an associative accumulation function. Each refresh resumes
+     * the reduction from the previously reduced value.
+     *
+     * @param accumulator the initial accumulator value
+     * @param operator    a function for combining two values
+     * @param <R>         the element type of the reduced value
+     * @return the {@link IncrementalResult}
+     * @throws IllegalArgumentException if operator is null
+     */
+    public <R> IncrementalResult<S, R> reduce(R accumulator, final BiFunction<? super T, R> operator) {
+        if (operator == null)
+            throw new IllegalArgumentException("operator must not be null");
+
+        return new IncrementalResult<S, R>(this.source, accumulator, new BiFunction<List<S>, R>() {
+            @Override
+            public R apply(R reduced, List<S> delta) {
+                return pipeline.apply(delta).reduce(reduced, operator);
+            }
+        });
+    }
+}
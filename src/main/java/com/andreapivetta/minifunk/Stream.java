@@ -3,21 +3,34 @@ package com.andreapivetta.minifunk;
 import com.andreapivetta.minifunk.function.BiFunction;
 import com.andreapivetta.minifunk.function.Consumer;
 import com.andreapivetta.minifunk.function.Function;
+import com.andreapivetta.minifunk.function.IntFunction;
 import com.andreapivetta.minifunk.function.Predicate;
 
+import java.io.Closeable;
 import java.util.*;
 
 /**
  * A sequence of elements supporting different aggregate operations.
+ * <p>
+ * A {@link Stream} and the streams derived from it share their close handlers, registered with
+ * {@link #onClose(Runnable)}. The handlers are run when a terminal operation completes, or as soon as any operation
+ * fails, including when its arguments are rejected. Once closed, every operation on any of these streams throws
+ * {@link IllegalStateException}.
  *
  * @author Andrea Pivetta
  */
-public final class Stream<T> {
+public final class Stream<T> implements Closeable {
 
     private final List<T> list;
+    private final Lifecycle lifecycle;
 
     private Stream(List<T> list) {
+        this(list, new Lifecycle());
+    }
+
+    private Stream(List<T> list, Lifecycle lifecycle) {
         this.list = list;
+        this.lifecycle = lifecycle;
     }
 
     /**
@@ -75,13 +88,23 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if predicate is null
      */
     public boolean allMatch(Predicate<? super T> predicate) {
-        if (predicate == null)
-            throw new IllegalArgumentException("predicate must not be null");
-
-        for (T t : this.list)
-            if (!predicate.test(t))
-                return false;
-        return true;
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (predicate == null)
+                throw new IllegalArgumentException("predicate must not be null");
+
+            boolean result = true;
+            for (T t : this.list)
+                if (!predicate.test(t)) {
+                    result = false;
+                    break;
+                }
+            completed = true;
+            return result;
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -92,13 +115,23 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if predicate is null
      */
     public boolean anyMatch(Predicate<? super T> predicate) {
-        if (predicate == null)
-            throw new IllegalArgumentException("predicate must not be null");
-
-        for (T t : this.list)
-            if (predicate.test(t))
-                return true;
-        return false;
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (predicate == null)
+                throw new IllegalArgumentException("predicate must not be null");
+
+            boolean result = false;
+            for (T t : this.list)
+                if (predicate.test(t)) {
+                    result = true;
+                    break;
+                }
+            completed = true;
+            return result;
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -107,7 +140,15 @@ public final class Stream<T> {
      * @return the count
      */
     public int count() {
-        return this.list.size();
+        checkOpen();
+        boolean completed = false;
+        try {
+            int count = this.list.size();
+            completed = true;
+            return count;
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -116,7 +157,15 @@ public final class Stream<T> {
      * @return the new {@link Stream}
      */
     public Stream<T> distinct() {
-        return new Stream<T>(new ArrayList<T>(new LinkedHashSet<T>(this.list)));
+        checkOpen();
+        boolean completed = false;
+        try {
+            List<T> distinct = new ArrayList<T>(new LinkedHashSet<T>(this.list));
+            completed = true;
+            return new Stream<T>(distinct, this.lifecycle);
+        } finally {
+            abortUnless(completed);
+        }
     }
 
     /**
@@ -128,14 +177,21 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if predicate is null
      */
     public Stream<T> filter(Predicate<? super T> predicate) {
-        if (predicate == null)
-            throw new IllegalArgumentException("predicate must not be null");
-
-        List<T> filtered = new ArrayList<T>();
-        for (T t : list)
-            if (predicate.test(t))
-                filtered.add(t);
-        return new Stream<T>(filtered);
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (predicate == null)
+                throw new IllegalArgumentException("predicate must not be null");
+
+            List<T> filtered = new ArrayList<T>();
+            for (T t : list)
+                if (predicate.test(t))
+                    filtered.add(t);
+            completed = true;
+            return new Stream<T>(filtered, this.lifecycle);
+        } finally {
+            abortUnless(completed);
+        }
     }
 
     /**
@@ -146,13 +202,23 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if predicate is null
      */
     public T findFirst(Predicate<? super T> predicate) {
-        if (predicate == null)
-            throw new IllegalArgumentException("predicate must not be null");
-
-        for (T t : this.list)
-            if (predicate.test(t))
-                return t;
-        return null;
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (predicate == null)
+                throw new IllegalArgumentException("predicate must not be null");
+
+            T result = null;
+            for (T t : this.list)
+                if (predicate.test(t)) {
+                    result = t;
+                    break;
+                }
+            completed = true;
+            return result;
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -165,13 +231,20 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if mapper is null
      */
     public <R> Stream<R> flatMap(Function<? super T, ? extends Stream<? extends R>> mapper) {
-        if (mapper == null)
-            throw new IllegalArgumentException("mapper must not be null");
-
-        List<R> mapped = new ArrayList<R>();
-        for (T t : this.list)
-            mapped.addAll(mapper.apply(t).toList());
-        return new Stream<R>(mapped);
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (mapper == null)
+                throw new IllegalArgumentException("mapper must not be null");
+
+            List<R> mapped = new ArrayList<R>();
+            for (T t : this.list)
+                mapped.addAll(mapper.apply(t).toList());
+            completed = true;
+            return new Stream<R>(mapped, this.lifecycle);
+        } finally {
+            abortUnless(completed);
+        }
     }
 
     /**
@@ -182,11 +255,69 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if action is null
      */
     public void forEach(Consumer<? super T> action) {
-        if (action == null)
-            throw new IllegalArgumentException("action must not be null");
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (action == null)
+                throw new IllegalArgumentException("action must not be null");
+
+            for (T t : this.list)
+                action.accept(t);
+            completed = true;
+        } finally {
+            terminate(completed);
+        }
+    }
 
-        for (T t : this.list)
-            action.accept(t);
+    /**
+     * Adds all the elements of this {@link Stream} to the given collection.
+     *
+     * @param collection the destination collection
+     * @param <C>        the type of the destination collection
+     * @return the destination collection
+     * @throws IllegalArgumentException if collection is null
+     */
+    public <C extends Collection<? super T>> C into(C collection) {
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (collection == null)
+                throw new IllegalArgumentException("collection must not be null");
+
+            collection.addAll(this.list);
+            completed = true;
+            return collection;
+        } finally {
+            terminate(completed);
+        }
+    }
+
+    /**
+     * Concatenates the string representation of the elements of this {@link Stream}, separated by the given
+     * separator.
+     *
+     * @param separator the separator to put between each element
+     * @return the joined {@link String}
+     * @throws IllegalArgumentException if separator is null
+     */
+    public String joining(String separator) {
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (separator == null)
+                throw new IllegalArgumentException("separator must not be null");
+
+            StringBuilder builder = new StringBuilder();
+            Iterator<T> iterator = this.list.iterator();
+            if (iterator.hasNext())
+                builder.append(iterator.next());
+            while (iterator.hasNext())
+                builder.append(separator).append(iterator.next());
+            completed = true;
+            return builder.toString();
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -197,12 +328,18 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if maxSize is less than 0
      */
     public Stream<T> limit(int maxSize) {
-        if (maxSize < 0)
-            throw new IllegalArgumentException("maxSize must be greater than 0");
-
-        if (this.list.size() < maxSize)
-            return new Stream<T>(this.list);
-        return new Stream<T>(this.list.subList(0, maxSize));
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (maxSize < 0)
+                throw new IllegalArgumentException("maxSize must be greater than 0");
+
+            List<T> limited = this.list.size() < maxSize ? this.list : this.list.subList(0, maxSize);
+            completed = true;
+            return new Stream<T>(limited, this.lifecycle);
+        } finally {
+            abortUnless(completed);
+        }
     }
 
     /**
@@ -215,13 +352,20 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if mapper is null
      */
     public <R> Stream<R> map(Function<? super T, ? extends R> mapper) {
-        if (mapper == null)
-            throw new IllegalArgumentException("mapper must not be null");
-
-        List<R> result = new ArrayList<R>();
-        for (T t : this.list)
-            result.add(mapper.apply(t));
-        return new Stream<R>(result);
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (mapper == null)
+                throw new IllegalArgumentException("mapper must not be null");
+
+            List<R> result = new ArrayList<R>(this.list.size());
+            for (T t : this.list)
+                result.add(mapper.apply(t));
+            completed = true;
+            return new Stream<R>(result, this.lifecycle);
+        } finally {
+            abortUnless(completed);
+        }
     }
 
     /**
@@ -233,10 +377,18 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if comparator is null
      */
     public T max(Comparator<? super T> comparator) {
-        if (comparator == null)
-            throw new IllegalArgumentException("comparator must not be null");
-
-        return Collections.max(this.list, comparator);
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (comparator == null)
+                throw new IllegalArgumentException("comparator must not be null");
+
+            T max = Collections.max(this.list, comparator);
+            completed = true;
+            return max;
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -248,10 +400,18 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if comparator is null
      */
     public T min(Comparator<? super T> comparator) {
-        if (comparator == null)
-            throw new IllegalArgumentException("comparator must not be null");
-
-        return Collections.min(this.list, comparator);
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (comparator == null)
+                throw new IllegalArgumentException("comparator must not be null");
+
+            T min = Collections.min(this.list, comparator);
+            completed = true;
+            return min;
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -265,6 +425,24 @@ public final class Stream<T> {
         return !anyMatch(predicate);
     }
 
+    /**
+     * Registers a handler to be run when this {@link Stream}, or any {@link Stream} derived from it, is closed.
+     * Handlers are run in registration order.
+     *
+     * @param closeHandler the handler to run on close
+     * @return this {@link Stream}
+     * @throws IllegalArgumentException if closeHandler is null
+     * @throws IllegalStateException    if this {@link Stream} has already been closed
+     */
+    public Stream<T> onClose(Runnable closeHandler) {
+        checkOpen();
+        if (closeHandler == null)
+            throw new IllegalArgumentException("closeHandler must not be null");
+
+        this.lifecycle.handlers.add(closeHandler);
+        return this;
+    }
+
     /**
      * Performs a reduction on the elements of this {@link Stream}, using the provided initial accumulator value
      * and an associative accumulation function, and returns the reduced value.
@@ -276,12 +454,19 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if operator is null
      */
     public <R> R reduce(R accumulator, BiFunction<? super T, R> operator) {
-        if (operator == null)
-            throw new IllegalArgumentException("operator must not be null");
-
-        for (T value : this.list)
-            accumulator = operator.apply(accumulator, value);
-        return accumulator;
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (operator == null)
+                throw new IllegalArgumentException("operator must not be null");
+
+            for (T value : this.list)
+                accumulator = operator.apply(accumulator, value);
+            completed = true;
+            return accumulator;
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -292,10 +477,18 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if n is negative
      */
     public Stream<T> skip(int n) {
-        if (n < 0)
-            throw new IllegalArgumentException("maxSize must be greater than 0");
-
-        return new Stream<T>(this.list.subList(n, this.list.size()));
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (n < 0)
+                throw new IllegalArgumentException("maxSize must be greater than 0");
+
+            List<T> skipped = this.list.subList(n, this.list.size());
+            completed = true;
+            return new Stream<T>(skipped, this.lifecycle);
+        } finally {
+            abortUnless(completed);
+        }
     }
 
     /**
@@ -306,12 +499,46 @@ public final class Stream<T> {
      * @throws IllegalArgumentException if comparator is null
      */
     public Stream<T> sorted(Comparator<? super T> comparator) {
-        if (comparator == null)
-            throw new IllegalArgumentException("comparator must not be null");
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (comparator == null)
+                throw new IllegalArgumentException("comparator must not be null");
+
+            List<T> copy = new ArrayList<T>(this.list);
+            Collections.sort(copy, comparator);
+            completed = true;
+            return new Stream<T>(copy, this.lifecycle);
+        } finally {
+            abortUnless(completed);
+        }
+    }
 
-        List<T> copy = new ArrayList<T>(this.list);
-        Collections.sort(copy, comparator);
-        return new Stream<T>(copy);
+    /**
+     * Returns an array containing the elements of this {@link Stream}, using the provided generator function to
+     * allocate an array of exactly the size of the {@link Stream}.
+     *
+     * @param generator a function which produces a new array of the desired type and the provided length
+     * @return the array
+     * @throws IllegalArgumentException if generator is null
+     * @throws IllegalStateException    if generator returns an array whose length is not the provided one
+     */
+    public T[] toArray(IntFunction<T[]> generator) {
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (generator == null)
+                throw new IllegalArgumentException("generator must not be null");
+
+            T[] array = generator.apply(this.list.size());
+            if (array == null || array.length != this.list.size())
+                throw new IllegalStateException("generator must return an array of the provided length");
+            array = this.list.toArray(array);
+            completed = true;
+            return array;
+        } finally {
+            terminate(completed);
+        }
     }
 
     /**
@@ -320,11 +547,126 @@ public final class Stream<T> {
      * @return the list
      */
     public List<T> toList() {
+        checkOpen();
+        close();
         return this.list;
     }
 
+    /**
+     * Returns a new {@link ArrayList} containing the elements of this {@link Stream}, allocated with room for at
+     * least sizeHint elements.
+     *
+     * @param sizeHint the expected final size of the list
+     * @return the list
+     * @throws IllegalArgumentException if sizeHint is negative
+     */
+    public List<T> toList(int sizeHint) {
+        checkOpen();
+        boolean completed = false;
+        try {
+            if (sizeHint < 0)
+                throw new IllegalArgumentException("sizeHint must not be negative");
+
+            List<T> copy = new ArrayList<T>(Math.max(sizeHint, this.list.size()));
+            copy.addAll(this.list);
+            completed = true;
+            return copy;
+        } finally {
+            terminate(completed);
+        }
+    }
+
+    /**
+     * Returns a {@link Set} containing the elements of this {@link Stream}, in encounter order.
+     *
+     * @return the set
+     */
+    public Set<T> toSet() {
+        checkOpen();
+        boolean completed = false;
+        try {
+            Set<T> set = new LinkedHashSet<T>(Math.max((int) (this.list.size() / .75f) + 1, 16));
+            set.addAll(this.list);
+            completed = true;
+            return set;
+        } finally {
+            terminate(completed);
+        }
+    }
+
+    /**
+     * Closes this {@link Stream} and the streams it shares its close handlers with, running each handler once. If
+     * any handler throws, the remaining ones are still run and the first exception is relayed to the caller. Closing
+     * an already closed {@link Stream} has no effect.
+     */
+    @Override
+    public void close() {
+        if (this.lifecycle.closed)
+            return;
+        this.lifecycle.closed = true;
+
+        Throwable failure = null;
+        for (Runnable handler : this.lifecycle.handlers) {
+            try {
+                handler.run();
+            } catch (Throwable t) {
+                if (failure == null)
+                    failure = t;
+            }
+        }
+        this.lifecycle.handlers.clear();
+
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new RuntimeException(failure);
+    }
+
     @Override
     public String toString() {
         return Arrays.toString(this.list.toArray());
     }
+
+    private void checkOpen() {
+        if (this.lifecycle.closed)
+            throw new IllegalStateException("stream has already been closed");
+    }
+
+    /**
+     * Closes this {@link Stream} at the end of a terminal operation. When the operation failed, its exception is the
+     * one relayed to the caller.
+     */
+    private void terminate(boolean completed) {
+        if (completed)
+            close();
+        else
+            closeQuietly();
+    }
+
+    /**
+     * Closes this {@link Stream} if an intermediate operation failed, leaving its exception to the caller.
+     */
+    private void abortUnless(boolean completed) {
+        if (!completed)
+            closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (Throwable ignored) {
+            // the original failure takes precedence
+        }
+    }
+
+    /**
+     * The close handlers and state shared by a {@link Stream} and the streams derived from it.
+     */
+    private static final class Lifecycle {
+
+        private final List<Runnable> handlers = new ArrayList<Runnable>();
+        private boolean closed;
+    }
 }
@@ -0,0 +1,17 @@
+package com.andreapivetta.minifunk.function;
+
+/**
+ * Represents a function that accepts an int-valued argument and produces a result.
+ *
+ * @author Andrea Pivetta
+ */
+public interface IntFunction<R> {
+
+    /**
+     * Applies this function to the given argument.
+     *
+     * @param value the function argument
+     * @return the function result
+     */
+    R apply(int value);
+}
@@ -0,0 +1,110 @@
+package com.andreapivetta.minifunk;
+
+import com.andreapivetta.minifunk.function.BiFunction;
+import com.andreapivetta.minifunk.function.Function;
+import com.andreapivetta.minifunk.function.Predicate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class IncrementalStreamTest {
+
+    @Test
+    public void count() throws Exception {
+        List<Integer> events = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+        IncrementalResult<Integer, Integer> count = IncrementalStream.from(events).count();
+
+        assertEquals(Integer.valueOf(3), count.get());
+
+        events.add(4);
+        assertEquals(Integer.valueOf(4), count.refresh());
+    }
+
+    @Test
+    public void distinct() throws Exception {
+        List<String> events = new ArrayList<String>(Arrays.asList("Inter", "Juventus", "Inter"));
+        IncrementalResult<String, Set<String>> distinct = IncrementalStream.from(events).distinct();
+
+        assertEquals(Arrays.asList("Inter", "Juventus"), new ArrayList<String>(distinct.get()));
+
+        Set<String> view = distinct.get();
+        events.addAll(Arrays.asList("Milan", "Juventus"));
+        assertEquals(Arrays.asList("Inter", "Juventus", "Milan"), new ArrayList<String>(distinct.refresh()));
+        assertEquals(3, view.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void distinctIsUnmodifiable() throws Exception {
+        List<String> events = new ArrayList<String>(Arrays.asList("Inter", "Juventus"));
+        IncrementalStream.from(events).distinct().get().add("Milan");
+    }
+
+    @Test
+    public void flatMap() throws Exception {
+        List<List<Integer>> events = new ArrayList<List<Integer>>();
+        events.add(Arrays.asList(1, 2));
+        IncrementalResult<List<Integer>, Integer> count = IncrementalStream.from(events)
+                .flatMap(new Function<List<Integer>, Stream<Integer>>() {
+                    @Override
+                    public Stream<Integer> apply(List<Integer> integers) {
+                        return Stream.from(integers);
+                    }
+                })
+                .count();
+
+        assertEquals(Integer.valueOf(2), count.get());
+
+        events.add(Arrays.asList(3, 4, 5));
+        assertEquals(Integer.valueOf(5), count.refresh());
+    }
+
+    @Test
+    public void refreshOnlyProcessesAppendedElements() throws Exception {
+        final List<String> mapped = new ArrayList<String>();
+        List<String> events = new ArrayList<String>(Arrays.asList("apple", "pear", "lemon"));
+        IncrementalResult<String, Integer> total = IncrementalStream.from(events)
+                .filter(new Predicate<String>() {
+                    @Override
+                    public boolean test(String value) {
+                        return value.length() > 4;
+                    }
+                })
+                .map(new Function<String, Integer>() {
+                    @Override
+                    public Integer apply(String value) {
+                        mapped.add(value);
+                        return value.length();
+                    }
+                })
+                .reduce(0, new BiFunction<Integer, Integer>() {
+                    @Override
+                    public Integer apply(Integer accumulator, Integer value) {
+                        return accumulator + value;
+                    }
+                });
+
+        assertEquals(Integer.valueOf(10), total.get());
+        assertEquals(Arrays.asList("apple", "lemon"), mapped);
+
+        events.addAll(Arrays.asList("fig", "banana"));
+        assertEquals(Integer.valueOf(16), total.refresh());
+        assertEquals(Arrays.asList("apple", "lemon", "banana"), mapped);
+
+        assertEquals(Integer.valueOf(16), total.refresh());
+        assertEquals(3, mapped.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refreshAfterSourceShrank() throws Exception {
+        List<Integer> events = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+        IncrementalResult<Integer, Integer> count = IncrementalStream.from(events).count();
+
+        events.remove(0);
+        count.refresh();
+    }
+}
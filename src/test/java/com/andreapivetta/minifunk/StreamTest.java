@@ -3,13 +3,16 @@ package com.andreapivetta.minifunk;
 import com.andreapivetta.minifunk.function.BiFunction;
 import com.andreapivetta.minifunk.function.Consumer;
 import com.andreapivetta.minifunk.function.Function;
+import com.andreapivetta.minifunk.function.IntFunction;
 import com.andreapivetta.minifunk.function.Predicate;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -142,6 +145,24 @@ public class StreamTest {
         assertEquals("lemon", result.get(2));
     }
 
+    @Test
+    public void into() throws Exception {
+        LinkedList<String> destination = new LinkedList<String>(Arrays.asList("banana"));
+        LinkedList<String> result = Stream
+                .from(Arrays.asList("apple", "pear", "lemon"))
+                .into(destination);
+
+        assertSame(destination, result);
+        assertEquals(Arrays.asList("banana", "apple", "pear", "lemon"), result);
+    }
+
+    @Test
+    public void joining() throws Exception {
+        assertEquals("apple, pear, lemon", Stream.of("apple", "pear", "lemon").joining(", "));
+        assertEquals("1", Stream.of(1).joining(", "));
+        assertEquals("", Stream.from(new ArrayList<String>()).joining(", "));
+    }
+
     @Test
     public void limit() throws Exception {
         List<Integer> limited = Stream.from(Arrays.asList(1, 2, 3)).limit(2).toList();
@@ -226,6 +247,194 @@ public class StreamTest {
                 }));
     }
 
+    @Test
+    public void onClose() throws Exception {
+        final List<String> closed = new ArrayList<String>();
+        Stream<String> stream = Stream
+                .from(Arrays.asList("Inter", "Milan", "Juventus"))
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        closed.add("first");
+                    }
+                });
+
+        String value = stream
+                .map(new Function<String, String>() {
+                    @Override
+                    public String apply(String s) {
+                        return s.toUpperCase();
+                    }
+                })
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        closed.add("second");
+                    }
+                })
+                .findFirst(new Predicate<String>() {
+                    @Override
+                    public boolean test(String s) {
+                        return s.startsWith("I");
+                    }
+                });
+
+        assertEquals("INTER", value);
+        assertEquals(Arrays.asList("first", "second"), closed);
+
+        stream.close();
+        assertEquals(2, closed.size());
+    }
+
+    @Test
+    public void onCloseWhenActionThrows() throws Exception {
+        final List<String> closed = new ArrayList<String>();
+        final RuntimeException failure = new IllegalStateException();
+        Stream<Integer> stream = Stream.of(1, 2, 3)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        closed.add("closed");
+                        throw new UnsupportedOperationException();
+                    }
+                });
+
+        try {
+            stream.forEach(new Consumer<Integer>() {
+                @Override
+                public void accept(Integer value) {
+                    throw failure;
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+
+        assertEquals(Arrays.asList("closed"), closed);
+    }
+
+    @Test
+    public void onCloseWhenMapperThrows() throws Exception {
+        final List<String> closed = new ArrayList<String>();
+        Stream<Integer> stream = Stream.of(1, 2, 3)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        closed.add("closed");
+                    }
+                });
+
+        try {
+            stream.map(new Function<Integer, Integer>() {
+                @Override
+                public Integer apply(Integer value) {
+                    throw new IllegalStateException();
+                }
+            });
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+
+        assertEquals(Arrays.asList("closed"), closed);
+    }
+
+    @Test
+    public void onCloseWhenMapperThrowsError() throws Exception {
+        final List<String> closed = new ArrayList<String>();
+        final AssertionError failure = new AssertionError();
+        Stream<Integer> stream = Stream.of(1, 2, 3)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        closed.add("closed");
+                        throw new StackOverflowError();
+                    }
+                });
+
+        try {
+            stream.map(new Function<Integer, Integer>() {
+                @Override
+                public Integer apply(Integer value) {
+                    throw failure;
+                }
+            });
+            fail();
+        } catch (AssertionError e) {
+            assertSame(failure, e);
+        }
+
+        assertEquals(Arrays.asList("closed"), closed);
+    }
+
+    @Test
+    public void onCloseWhenArgumentsAreRejected() throws Exception {
+        final List<String> closed = new ArrayList<String>();
+        Runnable handler = new Runnable() {
+            @Override
+            public void run() {
+                closed.add("closed");
+            }
+        };
+
+        try {
+            Stream.of(1, 2, 3).onClose(handler).forEach(null);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        try {
+            Stream.of(1, 2, 3).onClose(handler).skip(4);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        assertEquals(Arrays.asList("closed", "closed"), closed);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void onCloseAfterClose() throws Exception {
+        Stream<Integer> stream = Stream.of(1, 2, 3);
+        stream.count();
+        stream.onClose(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void operationAfterClose() throws Exception {
+        Stream<Integer> stream = Stream.of(1, 2, 3);
+        Stream<Integer> limited = stream.limit(2);
+        stream.count();
+        limited.toList();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closeRelaysHandlerException() throws Exception {
+        final List<String> closed = new ArrayList<String>();
+        Stream<Integer> stream = Stream.of(1, 2, 3)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException();
+                    }
+                })
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        closed.add("closed");
+                    }
+                });
+
+        try {
+            stream.close();
+        } finally {
+            assertEquals(Arrays.asList("closed"), closed);
+        }
+    }
+
     @Test
     public void reduce() throws Exception {
         Integer total = Stream
@@ -278,6 +487,35 @@ public class StreamTest {
         assertEquals("Inter", strings.get(0));
     }
 
+    @Test
+    public void toArray() throws Exception {
+        String[] strings = Stream
+                .from(Arrays.asList("apple", "pear", "lemon"))
+                .toArray(new IntFunction<String[]>() {
+                    @Override
+                    public String[] apply(int size) {
+                        return new String[size];
+                    }
+                });
+
+        assertArrayEquals(new String[]{"apple", "pear", "lemon"}, strings);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toArrayWithNullGenerator() throws Exception {
+        Stream.of("apple", "pear", "lemon").toArray(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void toArrayWithWrongSizeGenerator() throws Exception {
+        Stream.of("apple", "pear", "lemon").toArray(new IntFunction<String[]>() {
+            @Override
+            public String[] apply(int size) {
+                return new String[0];
+            }
+        });
+    }
+
     @Test
     public void toList() throws Exception {
         List<String> strings = Stream
@@ -295,6 +533,34 @@ public class StreamTest {
         assertEquals(3, strings.size());
     }
 
+    @Test
+    public void toListWithSizeHint() throws Exception {
+        List<String> source = Arrays.asList("apple", "pear", "lemon");
+        List<String> strings = Stream.from(source).toList(10);
+
+        assertNotSame(source, strings);
+        assertEquals(source, strings);
+        strings.add("banana");
+        assertEquals(4, strings.size());
+
+        assertEquals(source, Stream.from(source).toList(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toListWithNegativeSizeHint() throws Exception {
+        Stream.of("apple", "pear", "lemon").toList(-1);
+    }
+
+    @Test
+    public void toSet() throws Exception {
+        Set<String> strings = Stream
+                .from(Arrays.asList("Inter", "Juventus", "Milan", "Juventus"))
+                .toSet();
+
+        assertEquals(3, strings.size());
+        assertEquals(Arrays.asList("Inter", "Juventus", "Milan"), new ArrayList<String>(strings));
+    }
+
     @Test
     public void testToString() throws Exception {
         Stream<String> stream = Stream